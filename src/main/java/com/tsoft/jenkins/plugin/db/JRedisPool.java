@@ -1,35 +1,258 @@
 package com.tsoft.jenkins.plugin.db;
 
 import com.tsoft.jenkins.plugin.rejson.JReJSON;
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import com.tsoft.jenkins.plugin.rejson.MultiplexedClient;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Item;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
 import redis.clients.jedis.commands.ProtocolCommand;
 import redis.clients.jedis.util.SafeEncoder;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class JRedisPool {
 
-    private static JReJSON client;
+    private static volatile JReJSON client;
+    private static final Map<String, FolderPool> folderClients = new ConcurrentHashMap<>();
+    private static final Set<String> invalidFolderKeys = new HashSet<>();
     private static final Logger log = Logger.getLogger(JRedisPool.class.getName());
+    private static final long RETIRE_DELAY_SECONDS = 60;
+    // un socket multiplexado sin datos por este tiempo con comandos pendientes se da por muerto
+    private static final int SILENCE_TIMEOUT = Protocol.DEFAULT_TIMEOUT * 5;
 
     /**
      * @return the singleton instance of Jedis client
      */
     public static JReJSON getPool() {
         if (client == null) {
-            client = JRedisPool();
-            log.info("Nuevo cliente de redis creado: " + client.hashCode());
+            synchronized (JRedisPool.class) {
+                if (client == null) {
+                    client = JRedisPool();
+                    if (client != null) {
+                        log.info("Nuevo cliente de redis creado: " + client.hashCode());
+                    }
+                }
+            }
         }
         return client;
     }
 
+    /**
+     * Crea el cliente global y los de cada carpeta con sus conexiones al iniciar Jenkins,
+     * para que el primer pipeline no pague la creacion del pool ni la conexion con el servidor
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void warmUp() {
+        Timer.get().submit(() -> {
+            int minIdle = RedisDatabasePoolConfiguration.get().getMinIdle();
+            warmUp(getPool(), minIdle);
+            for (AbstractFolder<?> folder : Jenkins.get().getAllItems(AbstractFolder.class)) {
+                RedisFolderProperty property = folder.getProperties().get(RedisFolderProperty.class);
+                if (property != null && property.isConfigured()) {
+                    Integer maxIdle = property.getMaxIdle();
+                    try {
+                        warmUp(getPool(folder), maxIdle == null ? minIdle : Math.min(minIdle, maxIdle));
+                    } catch (IllegalStateException e) {
+                        // ya registrado por getPool
+                    }
+                }
+            }
+            RedisHealthMonitor.get().check();
+        });
+    }
+
+    private static void warmUp(JReJSON pool, int minIdle) {
+        if (pool == null) {
+            return;
+        }
+        try {
+            pool.warmUp(minIdle);
+            log.info("Cliente de redis inicializado: " + pool.hashCode());
+        } catch (Exception e) {
+            log.log(Level.WARNING, "No se pudo inicializar el cliente de redis", e);
+        }
+    }
+
+    /**
+     * @return every pool in use, keyed by who uses it and its server url: the global one first, then one per folder
+     */
+    public static Map<String, JReJSON> getEndpoints() {
+        Map<String, JReJSON> endpoints = new LinkedHashMap<>();
+        JReJSON global = getPool();
+        if (global != null) {
+            endpoints.put("Global (" + RedisDatabasePoolConfiguration.get().getRedisServerUrl() + ")", global);
+        }
+        for (FolderPool pool : folderClients.values()) {
+            endpoints.put("Folder " + pool.folder + " (" + pool.serverUrl + ")", pool.client);
+        }
+        return endpoints;
+    }
+
+    /**
+     * @param item the running job
+     * @return the client for the nearest folder with a {@link RedisFolderProperty}, or the global client
+     * @throws IllegalStateException if that folder has an invalid server url
+     */
+    public static JReJSON getPool(Item item) {
+        AbstractFolder<?> folder = RedisFolderProperty.nearestFolder(item);
+        if (folder == null) {
+            return getPool();
+        }
+        return getPool(folder);
+    }
+
+    /**
+     * Cada carpeta configurada tiene su propio pool, aunque use el mismo servidor que otra
+     */
+    private static JReJSON getPool(AbstractFolder<?> folder) {
+        RedisFolderProperty property = folder.getProperties().get(RedisFolderProperty.class);
+        String key = folderKey(folder, property);
+        FolderPool pool = folderClients.get(key);
+        if (pool != null) {
+            return pool.client;
+        }
+        String serverUrl = property.getEffectiveServerUrl();
+        synchronized (JRedisPool.class) {
+            pool = folderClients.get(key);
+            if (pool != null) {
+                return pool.client;
+            }
+            if (!invalidFolderKeys.contains(key)) {
+                JReJSON folderClient = JRedisPool(serverUrl, property.getMaxTotal(), property.getMaxIdle(),
+                        RedisDatabasePoolConfiguration.get().getMinIdle());
+                if (folderClient != null) {
+                    folderClients.put(key, new FolderPool(folder.getFullName(), serverUrl, folderClient));
+                    log.info("Nuevo cliente de redis creado para la carpeta " + folder.getFullName() + ": " + folderClient.hashCode());
+                    return folderClient;
+                }
+                // no se reintenta en cada llamada: se vuelve a probar cuando cambie la carpeta
+                invalidFolderKeys.add(key);
+                log.warning("La carpeta " + folder.getFullName() + " tiene una direccion de servidor de redis invalida: " + serverUrl);
+            }
+        }
+        throw new IllegalStateException("La carpeta " + folder.getFullName()
+                + " tiene una direccion de servidor de redis invalida: " + serverUrl);
+    }
+
+    /**
+     * Closes the folder clients no folder uses anymore, after a folder changed its
+     * {@link RedisFolderProperty} or the global configuration changed
+     */
+    public static void evictFolderClients() {
+        evictFolderClients(null);
+    }
+
+    /**
+     * @param deleted a folder being deleted, still reachable from Jenkins while its listeners run;
+     *                it and the folders inside it are treated as gone
+     */
+    public static void evictFolderClients(Item deleted) {
+        String deletedName = deleted == null ? null : deleted.getFullName();
+        Set<String> inUse = new HashSet<>();
+        for (AbstractFolder<?> folder : Jenkins.get().getAllItems(AbstractFolder.class)) {
+            String name = folder.getFullName();
+            if (deletedName != null && (name.equals(deletedName) || name.startsWith(deletedName + "/"))) {
+                continue;
+            }
+            RedisFolderProperty property = folder.getProperties().get(RedisFolderProperty.class);
+            if (property != null && property.isConfigured()) {
+                inUse.add(folderKey(folder, property));
+            }
+        }
+        synchronized (JRedisPool.class) {
+            invalidFolderKeys.retainAll(inUse);
+            folderClients.entrySet().removeIf(entry -> {
+                if (inUse.contains(entry.getKey())) {
+                    return false;
+                }
+                retire(entry.getValue().client);
+                return true;
+            });
+        }
+    }
+
+    private static String folderKey(AbstractFolder<?> folder, RedisFolderProperty property) {
+        RedisDatabasePoolConfiguration config = RedisDatabasePoolConfiguration.get();
+        return folder.getFullName() + "#" + property.getEffectiveServerUrl()
+                + "#" + property.getMaxTotal() + "#" + property.getMaxIdle()
+                + "#" + config.getTransport() + "#" + config.getMultiplexedConnections() + "#" + config.getMinIdle()
+                + "#" + config.getMaxWaitMillis();
+    }
+
+    private static class FolderPool {
+        private final String folder;
+        private final String serverUrl;
+        private final JReJSON client;
+
+        FolderPool(String folder, String serverUrl, JReJSON client) {
+            this.folder = folder;
+            this.serverUrl = serverUrl;
+            this.client = client;
+        }
+    }
+
+    /**
+     * Replaces the global client with one built from the current configuration.
+     * The previous client is closed later, so calls that already took it can finish.
+     */
+    public static void reload() {
+        JReJSON old;
+        synchronized (JRedisPool.class) {
+            old = client;
+            client = JRedisPool();
+            if (client != null) {
+                log.info("Nuevo cliente de redis creado: " + client.hashCode());
+            }
+        }
+        retire(old);
+    }
+
+    /**
+     * Cierra un cliente que ya no se entrega despues de {@link #RETIRE_DELAY_SECONDS},
+     * dejando terminar las llamadas que lo estan usando
+     */
+    static void retire(JReJSON old) {
+        if (old == null) {
+            return;
+        }
+        Timer.get().schedule(() -> {
+            log.info("Cerrando cliente de redis: " + old.hashCode());
+            old.close();
+        }, RETIRE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
     private static JReJSON JRedisPool() {
+        RedisDatabasePoolConfiguration config = RedisDatabasePoolConfiguration.get();
+        return JRedisPool(config.getRedisServerUrl(), null, null, config.getMinIdle());
+    }
+
+    /**
+     * @param serverUrl server url in the format `http://server_url:port`
+     * @param maxTotal maximum pooled connections, or null for the pool default
+     * @param maxIdle maximum idle pooled connections, or null for the pool default
+     * @param minIdle minimum idle pooled connections, or null for the pool default
+     */
+    private static JReJSON JRedisPool(String serverUrl, Integer maxTotal, Integer maxIdle, Integer minIdle) {
         try {
-            String serverUrl = RedisDatabasePoolConfiguration.get().getRedisServerUrl();
-            if (client == null && serverUrl != null) {
+            RedisDatabasePoolConfiguration config = RedisDatabasePoolConfiguration.get();
+            if (serverUrl != null) {
                 Pattern p = Pattern.compile("^([http|https]*\\:\\/\\/)?([a-zA-Z0-9\\.]+\\:\\d{2,5})$");
                 Matcher m = p.matcher(serverUrl);
                 if( m.matches() ) {
@@ -37,7 +260,23 @@ public class JRedisPool {
                     String url = m.group(2);
                     String server = url.split(":")[0];
                     int port = Integer.parseInt(url.split(":")[1]);
-                    return new JReJSON(server, port);
+                    if (config.getTransport() == RedisDatabasePoolConfiguration.Transport.MULTIPLEXED) {
+                        return new JReJSON(new MultiplexedClient(server, port,
+                                config.getMultiplexedConnections(), Protocol.DEFAULT_TIMEOUT, SILENCE_TIMEOUT));
+                    }
+                    GenericObjectPoolConfig<Jedis> poolConfig = new GenericObjectPoolConfig<>();
+                    // sin limite getResource() espera para siempre con el pool agotado
+                    poolConfig.setMaxWaitMillis(config.getMaxWaitMillis());
+                    if (maxTotal != null) {
+                        poolConfig.setMaxTotal(maxTotal);
+                    }
+                    if (maxIdle != null) {
+                        poolConfig.setMaxIdle(maxIdle);
+                    }
+                    if (minIdle != null) {
+                        poolConfig.setMinIdle(minIdle);
+                    }
+                    return new JReJSON(new JedisPool(poolConfig, server, port));
                 }
             }
         }
@@ -5,13 +5,16 @@ import hudson.Util;
 import hudson.util.FormValidation;
 import jenkins.model.GlobalConfiguration;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.interceptor.RequirePOST;
 import redis.clients.jedis.Jedis;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -20,10 +23,36 @@ import java.util.regex.Pattern;
 @Extension
 public class RedisDatabasePoolConfiguration extends GlobalConfiguration {
 
+    /**
+     * How {@link JRedisPool} talks to the server
+     */
+    public enum Transport {
+        POOLED("Pooled (one connection per call)"),
+        MULTIPLEXED("Multiplexed (shared pipelined connections)");
+        private final String displayName;
+
+        Transport(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
     static final Logger log = Logger.getLogger(RedisDatabasePoolConfiguration.class.getName());
+    static final int DEFAULT_MAX_WAIT_MILLIS = 10000;
     private String redisServerUrl = "localhost:6379";
+    private Transport transport = Transport.POOLED;
+    private int multiplexedConnections = 2;
+    private int minIdle = 2;
+    private int maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
     private Pattern p = Pattern.compile("^([http|https]*\\:\\/\\/)?([a-zA-Z0-9\\.]+\\:\\d{2,5})$");
 
+    public RedisDatabasePoolConfiguration() {
+        load();
+    }
+
     /** @return the singleton instance */
     public static RedisDatabasePoolConfiguration get() {
         return GlobalConfiguration.all().get(RedisDatabasePoolConfiguration.class);
@@ -40,6 +69,65 @@ public class RedisDatabasePoolConfiguration extends GlobalConfiguration {
     }
     public String getRedisServerUrl(){ return this.redisServerUrl; }
 
+    @DataBoundSetter
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+        save();
+    }
+    public Transport getTransport(){ return this.transport == null ? Transport.POOLED : this.transport; }
+
+    @DataBoundSetter
+    public void setMultiplexedConnections(int multiplexedConnections) {
+        this.multiplexedConnections = multiplexedConnections;
+        save();
+    }
+    public int getMultiplexedConnections(){ return this.multiplexedConnections < 1 ? 1 : this.multiplexedConnections; }
+
+    @DataBoundSetter
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+        save();
+    }
+    public int getMinIdle(){ return this.minIdle < 0 ? 0 : this.minIdle; }
+
+    /**
+     * Cuanto espera una llamada por una conexion con el pool agotado antes de fallar
+     * @param maxWaitMillis the wait in milliseconds
+     */
+    @DataBoundSetter
+    public void setMaxWaitMillis(int maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+        save();
+    }
+    public int getMaxWaitMillis(){ return this.maxWaitMillis <= 0 ? DEFAULT_MAX_WAIT_MILLIS : this.maxWaitMillis; }
+
+    /** @return the status of the last health check, shown in {@code config.jelly} */
+    public RedisHealthMonitor getHealth() {
+        return RedisHealthMonitor.get();
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        String oldServerUrl = getRedisServerUrl();
+        Transport oldTransport = getTransport();
+        int oldMultiplexedConnections = getMultiplexedConnections();
+        int oldMinIdle = getMinIdle();
+        int oldMaxWaitMillis = getMaxWaitMillis();
+        boolean result = super.configure(req, json);
+        // configure() se llama al guardar cualquier configuracion global: solo se recrea
+        // el cliente si cambio la conexion con el servidor
+        if (!Objects.equals(oldServerUrl, getRedisServerUrl())
+                || oldTransport != getTransport()
+                || oldMultiplexedConnections != getMultiplexedConnections()
+                || oldMinIdle != getMinIdle()
+                || oldMaxWaitMillis != getMaxWaitMillis()) {
+            JRedisPool.reload();
+            JRedisPool.evictFolderClients();
+            JRedisPool.warmUp();
+        }
+        return result;
+    }
+
     @RequirePOST
     public FormValidation doCheckRedisServerUrl(@QueryParameter String value) {
         Jenkins.get().checkPermission(Jenkins.ADMINISTER);
@@ -89,13 +177,15 @@ public class RedisDatabasePoolConfiguration extends GlobalConfiguration {
     private boolean testConection(String server_url){
         String server = server_url.split(":")[0];
         int port = Integer.parseInt(server_url.split(":")[1]);
-        String result = new Jedis(server, port).ping().toLowerCase();
-        if( result.equals("pong") ) {
-            return true;
-        }
-        else{
-            log.warning("Fallo la conexion con el servidor: "+server);
-            return false;
+        try (Jedis jedis = new Jedis(server, port)) {
+            String result = jedis.ping().toLowerCase();
+            if( result.equals("pong") ) {
+                return true;
+            }
+            else{
+                log.warning("Fallo la conexion con el servidor: "+server);
+                return false;
+            }
         }
     }
 
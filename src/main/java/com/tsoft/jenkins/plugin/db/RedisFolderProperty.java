@@ -0,0 +1,148 @@
+package com.tsoft.jenkins.plugin.db;
+
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import com.cloudbees.hudson.plugins.folder.AbstractFolderProperty;
+import com.cloudbees.hudson.plugins.folder.AbstractFolderPropertyDescriptor;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.listeners.ItemListener;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.AncestorInPath;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
+
+import javax.annotation.Nonnull;
+import java.util.regex.Pattern;
+
+/**
+ * Gives the jobs inside a folder their own Redis pool, optionally on a different server than the global one
+ */
+public class RedisFolderProperty extends AbstractFolderProperty<AbstractFolder<?>> {
+
+    private static final Pattern p = Pattern.compile("^([http|https]*\\:\\/\\/)?([a-zA-Z0-9\\.]+\\:\\d{2,5})$");
+
+    private final String redisServerUrl;
+    private Integer maxTotal;
+    private Integer maxIdle;
+
+    /**
+     * @param redisServerUrl server url in the format `http://server_url:port`, or empty to use the global server
+     */
+    @DataBoundConstructor
+    public RedisFolderProperty(String redisServerUrl) {
+        this.redisServerUrl = Util.fixEmptyAndTrim(redisServerUrl);
+        if (this.redisServerUrl != null && !p.matcher(this.redisServerUrl).matches()) {
+            throw new IllegalArgumentException("La direccion de servidor debe tener el formato: `http://server_url:port`");
+        }
+    }
+
+    public String getRedisServerUrl(){ return this.redisServerUrl; }
+
+    /** @return the folder url, or the global one when the folder only sets pool limits */
+    public String getEffectiveServerUrl() {
+        return this.redisServerUrl != null ? this.redisServerUrl : RedisDatabasePoolConfiguration.get().getRedisServerUrl();
+    }
+
+    /** @return true if the folder sets a server or pool limits, and so gets its own pool */
+    public boolean isConfigured() {
+        return this.redisServerUrl != null || this.maxTotal != null || this.maxIdle != null;
+    }
+
+    @DataBoundSetter
+    public void setMaxTotal(Integer maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+    public Integer getMaxTotal(){ return this.maxTotal; }
+
+    @DataBoundSetter
+    public void setMaxIdle(Integer maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+    public Integer getMaxIdle(){ return this.maxIdle; }
+
+    /**
+     * Busca la carpeta mas cercana al item que tenga su propio pool de REDIS configurado
+     * @param item the running job
+     * @return the nearest configured property, or null to use the global configuration
+     */
+    public static RedisFolderProperty nearest(Item item) {
+        AbstractFolder<?> folder = nearestFolder(item);
+        return folder == null ? null : folder.getProperties().get(RedisFolderProperty.class);
+    }
+
+    /**
+     * @param item the running job
+     * @return the nearest folder with a configured property, or null to use the global configuration
+     */
+    public static AbstractFolder<?> nearestFolder(Item item) {
+        ItemGroup<?> parent = item == null ? null : item.getParent();
+        while (parent instanceof AbstractFolder) {
+            AbstractFolder<?> folder = (AbstractFolder<?>) parent;
+            RedisFolderProperty property = folder.getProperties().get(RedisFolderProperty.class);
+            if (property != null && property.isConfigured()) {
+                return folder;
+            }
+            parent = folder.getParent();
+        }
+        return null;
+    }
+
+    @Extension
+    @Symbol("redisServer")
+    public static class DescriptorImpl extends AbstractFolderPropertyDescriptor {
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Redis server";
+        }
+
+        @POST
+        public FormValidation doCheckRedisServerUrl(@AncestorInPath Item item, @QueryParameter String value) {
+            if (item == null) {
+                Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+            } else {
+                item.checkPermission(Item.CONFIGURE);
+            }
+            if (Util.fixEmptyAndTrim(value) == null || p.matcher(value).matches()) {
+                return FormValidation.ok();
+            }
+            return FormValidation.error("La direccion de servidor debe tener el formato: `http://server_url:port`");
+        }
+    }
+
+    /**
+     * Cierra los clientes de redis que quedan sin uso al cambiar o eliminar una carpeta
+     */
+    @Extension
+    public static class FolderListener extends ItemListener {
+
+        @Override
+        public void onUpdated(Item item) {
+            if (item instanceof AbstractFolder) {
+                JRedisPool.evictFolderClients();
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            // se llama antes de quitar la carpeta de su padre, por eso se excluye explicitamente
+            if (item instanceof AbstractFolder) {
+                JRedisPool.evictFolderClients(item);
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            if (item instanceof AbstractFolder) {
+                JRedisPool.evictFolderClients();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.tsoft.jenkins.plugin.db;
+
+import hudson.Extension;
+import hudson.model.AdministrativeMonitor;
+
+import java.util.List;
+
+/**
+ * Avisa a los administradores cuando algun pool de REDIS no respondio el ultimo PING de {@link RedisHealthMonitor}
+ */
+@Extension
+public class RedisHealthAdministrativeMonitor extends AdministrativeMonitor {
+
+    @Override
+    public String getDisplayName() {
+        return "Redis server health";
+    }
+
+    @Override
+    public boolean isActivated() {
+        return !getUnhealthyEndpoints().isEmpty();
+    }
+
+    /** @return the pools shown in {@code message.jelly} */
+    public List<RedisHealthMonitor.Endpoint> getUnhealthyEndpoints() {
+        return RedisHealthMonitor.get().getUnhealthyEndpoints();
+    }
+}
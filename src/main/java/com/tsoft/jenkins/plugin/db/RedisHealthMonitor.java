@@ -0,0 +1,164 @@
+package com.tsoft.jenkins.plugin.db;
+
+import com.tsoft.jenkins.plugin.rejson.JReJSON;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.PeriodicWork;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Envia un PING periodico a cada servidor de REDIS en uso (el global y los de las carpetas)
+ * y registra la latencia, para detectar un servidor caido antes de que falle un pipeline
+ */
+@Extension
+public class RedisHealthMonitor extends PeriodicWork {
+
+    private static final Logger log = Logger.getLogger(RedisHealthMonitor.class.getName());
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile boolean configured = true;
+
+    /** @return the singleton instance */
+    public static RedisHealthMonitor get() {
+        return ExtensionList.lookupSingleton(RedisHealthMonitor.class);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.SECONDS.toMillis(30);
+    }
+
+    @Override
+    protected void doRun() {
+        check();
+    }
+
+    /**
+     * Hace un PING con una conexion de cada pool en uso y guarda el resultado
+     */
+    public void check() {
+        Map<String, JReJSON> clients;
+        try {
+            clients = JRedisPool.getEndpoints();
+        } catch (Exception e) {
+            log.warning("No se pudieron obtener los clientes de redis: " + e);
+            return;
+        }
+        configured = !clients.isEmpty();
+        endpoints.keySet().retainAll(clients.keySet());
+        for (Map.Entry<String, JReJSON> client : clients.entrySet()) {
+            endpoints.computeIfAbsent(client.getKey(), Endpoint::new).check(client.getValue());
+        }
+    }
+
+    /** @return the last result for each pool, shown in {@code config.jelly} */
+    public List<Endpoint> getEndpoints() {
+        List<Endpoint> result = new ArrayList<>(endpoints.values());
+        result.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return result;
+    }
+
+    /** @return the pools whose last PING failed, shown by {@link RedisHealthAdministrativeMonitor} */
+    public List<Endpoint> getUnhealthyEndpoints() {
+        List<Endpoint> result = new ArrayList<>();
+        for (Endpoint endpoint : getEndpoints()) {
+            if (endpoint.lastCheck != 0 && !endpoint.isHealthy()) {
+                result.add(endpoint);
+            }
+        }
+        return result;
+    }
+
+    /** @return a summary when there is nothing to list, or null */
+    public String getStatus() {
+        if (!configured) {
+            return "No Redis server is configured";
+        }
+        if (endpoints.isEmpty()) {
+            return "Not checked yet";
+        }
+        return null;
+    }
+
+    /**
+     * Resultado del ultimo PING a un pool, el global o el de una carpeta
+     */
+    public static class Endpoint {
+
+        private final String name;
+        private volatile boolean healthy;
+        private volatile long lastRttMicros = -1;
+        private volatile long lastCheck;
+        private volatile String lastError;
+
+        /**
+         * @param name the pool owner and its server url, as returned by {@link JRedisPool#getEndpoints()}
+         */
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        boolean check(JReJSON client) {
+            try {
+                long start = System.nanoTime();
+                String reply = client.ping();
+                long rtt = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                if ("PONG".equalsIgnoreCase(reply)) {
+                    return record(true, rtt, null);
+                }
+                return record(false, rtt, "Unexpected reply: " + reply);
+            } catch (Exception e) {
+                // incluye un pool agotado, que falla al vencer maxWaitMillis
+                return record(false, -1, e.toString());
+            }
+        }
+
+        private boolean record(boolean healthy, long rttMicros, String error) {
+            boolean wasHealthy = this.healthy || this.lastCheck == 0;
+            this.lastRttMicros = rttMicros;
+            this.lastError = error;
+            this.lastCheck = System.currentTimeMillis();
+            this.healthy = healthy;
+            if (wasHealthy && !healthy) {
+                log.warning("Fallo la conexion con el servidor de redis " + name + ": " + error);
+            } else if (!wasHealthy && healthy) {
+                log.info("Conexion con el servidor de redis " + name + " disponible");
+            }
+            return healthy;
+        }
+
+        public String getName() { return this.name; }
+
+        public boolean isHealthy() { return this.healthy; }
+
+        /** @return the last round trip time in milliseconds, or -1 if unknown */
+        public double getLastRttMillis() {
+            return lastRttMicros < 0 ? -1 : lastRttMicros / 1000.0;
+        }
+
+        public String getLastError() { return this.lastError; }
+
+        /** @return when the last check ran */
+        public Date getLastCheck() {
+            return new Date(lastCheck);
+        }
+
+        /** @return a one line summary for the configuration page */
+        public String getStatus() {
+            if (lastCheck == 0) {
+                return "Not checked yet";
+            }
+            if (healthy) {
+                return String.format("Healthy, PING %.2f ms (%s)", getLastRttMillis(), getLastCheck());
+            }
+            return String.format("Unhealthy: %s (%s)", lastError, getLastCheck());
+        }
+    }
+}
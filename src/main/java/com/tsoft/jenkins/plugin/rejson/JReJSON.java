@@ -1,6 +1,7 @@
 package com.tsoft.jenkins.plugin.rejson;
 
 import com.google.gson.Gson;
+import redis.clients.jedis.BuilderFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.commands.ProtocolCommand;
@@ -23,7 +24,8 @@ public class JReJSON {
         GET("JSON.GET"),
         SET("JSON.SET"),
         TYPE("JSON.TYPE"),
-        KEYS("KEYS");
+        KEYS("KEYS"),
+        PING("PING");
         private final byte[] raw;
 
         Command(String alt) {
@@ -51,6 +53,7 @@ public class JReJSON {
     }
 
     private Pool<Jedis> client;
+    private MultiplexedClient multiplexer;
 
     /**
      * Creates a client to the local machine
@@ -78,6 +81,15 @@ public class JReJSON {
         this.client = jedis;
     }
 
+    /**
+     * Creates a client sharing a few multiplexed connections among all callers
+     *
+     * @param multiplexer the multiplexed connections to send commands on
+     */
+    public JReJSON(MultiplexedClient multiplexer) {
+        this.multiplexer = multiplexer;
+    }
+
     /**
      *  Helper to check for errors and throw them as an exception
      * @param str the reply string to "analyze"
@@ -136,10 +148,7 @@ public class JReJSON {
         args[0] = SafeEncoder.encode(key);
         args[1] = SafeEncoder.encode(path.toString());
 
-        try (Jedis conn = getConnection()) {
-            conn.getClient().sendCommand(Command.DEL, args);
-            return conn.getClient().getIntegerReply();
-        }
+        return (Long) sendCommand(Command.DEL, args);
     }
 
     /**
@@ -165,11 +174,7 @@ public class JReJSON {
             args[++i] = SafeEncoder.encode(p.toString());
         }
 
-        String rep;
-        try (Jedis conn = getConnection()) {
-            conn.getClient().sendCommand(Command.GET, args);
-            rep = conn.getClient().getBulkReply();
-        }
+        String rep = toStringReply(sendCommand(Command.GET, args));
         assertReplyNotError(rep);
         return (T)gson.fromJson(rep, Object.class);
     }
@@ -221,12 +226,7 @@ public class JReJSON {
             args.add(flag.getRaw());
         }
 
-        String status;
-        try (Jedis conn = getConnection()) {
-            conn.getClient()
-                    .sendCommand(Command.SET, args.toArray(new byte[args.size()][]));
-            status = conn.getClient().getStatusCodeReply();
-        }
+        String status = toStringReply(sendCommand(Command.SET, args.toArray(new byte[args.size()][])));
         assertReplyOK(status);
     }
 
@@ -252,12 +252,7 @@ public class JReJSON {
         args.add(SafeEncoder.encode(key));
         args.add(SafeEncoder.encode(path.toString()));
 
-        String rep;
-        try (Jedis conn = getConnection()) {
-            conn.getClient()
-                    .sendCommand(Command.TYPE, args.toArray(new byte[args.size()][]));
-            rep = conn.getClient().getBulkReply();
-        }
+        String rep = toStringReply(sendCommand(Command.TYPE, args.toArray(new byte[args.size()][])));
 
         assertReplyNotError(rep);
 
@@ -287,10 +282,9 @@ public class JReJSON {
      */
     public List<String> keys() {
         List<String> values = null;
-        try (Jedis conn = getConnection()) {
+        try {
             byte[][] args = new byte[][]{SafeEncoder.encode("*")};
-            conn.getClient().sendCommand(Command.KEYS, args);
-            values = conn.getClient().getMultiBulkReply();
+            values = BuilderFactory.STRING_LIST.build(sendCommand(Command.KEYS, args));
         }
         catch (Exception ne) {
             ne.printStackTrace();
@@ -434,8 +428,75 @@ public class JReJSON {
         }
     }
 
+    /**
+     * Checks the server is reachable
+     * @return the server reply, "PONG"
+     */
+    public String ping() {
+        return toStringReply(sendCommand(Command.PING));
+    }
+
+    /**
+     * Opens connections ahead of the first command
+     * @param count number of idle pooled connections to have, ignored by the multiplexed transport
+     */
+    public void warmUp(int count) {
+        if (multiplexer != null) {
+            multiplexer.connectAll();
+            return;
+        }
+        int missing = count - client.getNumIdle();
+        if (missing > 0) {
+            client.addObjects(missing);
+        }
+    }
+
+    /**
+     * Sends a command on the configured transport and waits for its raw reply
+     * @param command the command to send
+     * @param args the command arguments
+     * @return the raw reply
+     */
+    private Object sendCommand(Command command, byte[]... args) {
+        if (multiplexer != null) {
+            return multiplexer.execute(command, args);
+        }
+        try (Jedis conn = getConnection()) {
+            conn.getClient().sendCommand(command, args);
+            return conn.getClient().getOne();
+        }
+    }
+
+    /**
+     * Helper to decode a status or bulk reply
+     * @param reply the raw reply
+     * @return the reply as a string, or null
+     */
+    private static String toStringReply(Object reply) {
+        return reply == null ? null : SafeEncoder.encode((byte[]) reply);
+    }
+
+    /**
+     * @return a pooled connection
+     * @throws IllegalStateException when this client uses the multiplexed transport
+     */
     public Jedis getConnection() {
+        if (this.client == null) {
+            throw new IllegalStateException("Pooled connections are not available with the multiplexed transport");
+        }
         return this.client.getResource();
     }
 
+    /**
+     * Closes the pool or the multiplexed connections
+     */
+    public void close() {
+        if (this.client != null) {
+            this.client.close();
+        }
+        if (this.multiplexer != null) {
+            this.multiplexer.close();
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.tsoft.jenkins.plugin.rejson;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small, fixed set of {@link MultiplexedConnection}s shared by every caller.
+ * Commands are spread round-robin and a broken connection is reopened on next use.
+ * While a slot is reconnecting, or after a failed attempt, callers on that slot fail fast
+ * instead of queueing behind the connect.
+ */
+public class MultiplexedClient implements Closeable {
+
+    private final String host;
+    private final int port;
+    private final int timeout;
+    private final int silenceTimeout;
+    private final AtomicReferenceArray<MultiplexedConnection> connections;
+    private final AtomicIntegerArray reconnecting;
+    private final AtomicLongArray retryAt;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param host Redis host
+     * @param port Redis port
+     * @param size number of sockets to open
+     * @param timeout connect and reply timeout in milliseconds, also the wait before retrying a failed connect
+     * @param silenceTimeout see {@link MultiplexedConnection#MultiplexedConnection(String, int, int, int)}
+     */
+    public MultiplexedClient(String host, int port, int size, int timeout, int silenceTimeout) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+        this.silenceTimeout = silenceTimeout;
+        this.connections = new AtomicReferenceArray<>(Math.max(1, size));
+        this.reconnecting = new AtomicIntegerArray(connections.length());
+        this.retryAt = new AtomicLongArray(connections.length());
+    }
+
+    /**
+     * Sends a command on the next connection and waits for its reply
+     * @param command the command to send
+     * @param args the command arguments
+     * @return the raw reply
+     */
+    public Object execute(ProtocolCommand command, byte[]... args) {
+        int slot = Math.floorMod(next.getAndIncrement(), connections.length());
+        return connection(slot).execute(command, args);
+    }
+
+    /**
+     * Opens every connection that is not already open
+     */
+    public void connectAll() {
+        for (int i = 0; i < connections.length(); i++) {
+            connection(i);
+        }
+    }
+
+    private MultiplexedConnection connection(int slot) {
+        MultiplexedConnection conn = connections.get(slot);
+        if (conn != null && conn.isOpen()) {
+            return conn;
+        }
+        if (closed) {
+            throw new IllegalStateException("Client is closed");
+        }
+        long retry = retryAt.get(slot);
+        if (retry != 0 && System.nanoTime() - retry < 0) {
+            throw new JedisConnectionException("Connecting to " + host + ":" + port + " failed recently, retrying later");
+        }
+        if (!reconnecting.compareAndSet(slot, 0, 1)) {
+            throw new JedisConnectionException("Reconnecting to " + host + ":" + port + " in progress");
+        }
+        try {
+            conn = connections.get(slot);
+            if (conn != null && conn.isOpen()) {
+                return conn;
+            }
+            try {
+                conn = new MultiplexedConnection(host, port, timeout, silenceTimeout);
+            } catch (JedisConnectionException e) {
+                retryAt.set(slot, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+                throw e;
+            }
+            retryAt.set(slot, 0);
+            connections.set(slot, conn);
+            if (closed) {
+                // close() ran while connecting
+                connections.compareAndSet(slot, conn, null);
+                conn.close();
+                throw new IllegalStateException("Client is closed");
+            }
+            return conn;
+        } finally {
+            reconnecting.set(slot, 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (int i = 0; i < connections.length(); i++) {
+            MultiplexedConnection conn = connections.getAndSet(i, null);
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.tsoft.jenkins.plugin.rejson;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single long-lived socket shared by every caller. Commands issued concurrently are written
+ * together in one gathering write (automatic pipelining) and replies are matched to their
+ * callers in FIFO order, as Redis answers commands on a connection in the order they arrive.
+ */
+public class MultiplexedConnection implements Closeable {
+
+    private static final Logger log = Logger.getLogger(MultiplexedConnection.class.getName());
+    private static final byte[] CRLF = new byte[]{'\r', '\n'};
+
+    private final SocketChannel channel;
+    private final int timeout;
+    private final int silenceTimeout;
+    private final Queue<PendingCommand> outbound = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingCommand> inflight = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+    private volatile boolean open = true;
+    private volatile long lastReadNanos = System.nanoTime();
+
+    /**
+     * Opens the socket and starts the reply reader thread
+     * @param host Redis host
+     * @param port Redis port
+     * @param timeout connect and reply timeout in milliseconds
+     * @param silenceTimeout how long the server may send nothing while commands are pending
+     *                       before the socket is considered dead, in milliseconds
+     */
+    public MultiplexedConnection(String host, int port, int timeout, int silenceTimeout) {
+        this.timeout = timeout;
+        this.silenceTimeout = silenceTimeout;
+        try {
+            channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            channel.socket().connect(new InetSocketAddress(host, port), timeout);
+        } catch (IOException e) {
+            throw new JedisConnectionException("Failed connecting to " + host + ":" + port, e);
+        }
+        in.flip();
+        Thread reader = new Thread(this::readLoop, "jredis-multiplexed-" + host + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return false once the socket has failed or been closed
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Sends a command and waits for its reply
+     * @param command the command to send
+     * @param args the command arguments
+     * @return the raw reply: byte[] for status and bulk replies, Long, or List of raw replies
+     */
+    public Object execute(ProtocolCommand command, byte[]... args) {
+        if (!open) {
+            throw new JedisConnectionException("Connection is closed");
+        }
+        PendingCommand pending = new PendingCommand(encode(command, args));
+        outbound.add(pending);
+        flush();
+        try {
+            return pending.reply.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JedisConnectionException(cause);
+        } catch (TimeoutException e) {
+            // solo vence la espera de este llamador: su comando sigue en inflight y la respuesta
+            // tardia se descarta al llegar, asi las demas respuestas siguen en orden
+            if (isSilent()) {
+                fail(new JedisConnectionException("No data from server for " + silenceTimeout + " ms"));
+            }
+            throw new JedisConnectionException("Timed out waiting for a reply", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException(e);
+        }
+    }
+
+    /**
+     * @return true if commands are pending and nothing has arrived for {@link #silenceTimeout}
+     */
+    private boolean isSilent() {
+        PendingCommand oldest = inflight.peek();
+        if (oldest == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long quiet = Math.min(now - lastReadNanos, now - oldest.sentNanos);
+        return quiet >= TimeUnit.MILLISECONDS.toNanos(silenceTimeout);
+    }
+
+    /**
+     * Writes every queued command. Whoever holds the lock writes on behalf of the others,
+     * so commands arriving while a write is in progress go out together in the next batch.
+     */
+    private void flush() {
+        while (!outbound.isEmpty() && writeLock.tryLock()) {
+            try {
+                List<ByteBuffer> batch = new ArrayList<>();
+                PendingCommand pending;
+                while ((pending = outbound.poll()) != null) {
+                    pending.sentNanos = System.nanoTime();
+                    inflight.add(pending);
+                    batch.add(ByteBuffer.wrap(pending.payload));
+                }
+                if (batch.isEmpty()) {
+                    // fail() already drained the queue
+                    return;
+                }
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[batch.size()]);
+                while (buffers[buffers.length - 1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+            } catch (IOException e) {
+                fail(new JedisConnectionException(e));
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (open) {
+                Object reply = readReply();
+                PendingCommand pending = inflight.poll();
+                if (pending == null) {
+                    throw new IOException("Received a reply with no pending command");
+                }
+                if (reply instanceof JedisDataException) {
+                    pending.reply.completeExceptionally((JedisDataException) reply);
+                } else {
+                    pending.reply.complete(reply);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (open) {
+                log.log(Level.WARNING, "Multiplexed redis connection lost", e);
+            }
+            fail(new JedisConnectionException(e));
+        }
+    }
+
+    private Object readReply() throws IOException {
+        byte type = readByte();
+        switch (type) {
+            case '+':
+                return readLineBytes();
+            case '-':
+                return new JedisDataException(readLine());
+            case ':':
+                return Long.parseLong(readLine());
+            case '$': {
+                int len = Integer.parseInt(readLine());
+                if (len < 0) {
+                    return null;
+                }
+                byte[] data = new byte[len];
+                int read = 0;
+                while (read < len) {
+                    fill();
+                    int chunk = Math.min(len - read, in.remaining());
+                    in.get(data, read, chunk);
+                    read += chunk;
+                }
+                readByte();
+                readByte();
+                return data;
+            }
+            case '*': {
+                int count = Integer.parseInt(readLine());
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(readReply());
+                }
+                return items;
+            }
+            default:
+                throw new IOException("Unknown reply: " + (char) type);
+        }
+    }
+
+    private String readLine() throws IOException {
+        return SafeEncoder.encode(readLineBytes());
+    }
+
+    private byte[] readLineBytes() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte b;
+        while ((b = readByte()) != '\r') {
+            line.write(b);
+        }
+        readByte();
+        return line.toByteArray();
+    }
+
+    private byte readByte() throws IOException {
+        fill();
+        return in.get();
+    }
+
+    private void fill() throws IOException {
+        while (!in.hasRemaining()) {
+            in.clear();
+            int n = channel.read(in);
+            in.flip();
+            if (n < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+            lastReadNanos = System.nanoTime();
+        }
+    }
+
+    private static byte[] encode(ProtocolCommand command, byte[]... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeHeader(out, '*', args.length + 1);
+        writeBulk(out, command.getRaw());
+        for (byte[] arg : args) {
+            writeBulk(out, arg);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeBulk(ByteArrayOutputStream out, byte[] value) {
+        writeHeader(out, '$', value.length);
+        out.write(value, 0, value.length);
+        out.write(CRLF, 0, CRLF.length);
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, char type, int size) {
+        byte[] header = SafeEncoder.encode(type + Integer.toString(size) + "\r\n");
+        out.write(header, 0, header.length);
+    }
+
+    /**
+     * Fails every command still waiting and closes the socket
+     */
+    private void fail(JedisConnectionException cause) {
+        open = false;
+        PendingCommand pending;
+        while ((pending = inflight.poll()) != null) {
+            pending.reply.completeExceptionally(cause);
+        }
+        while ((pending = outbound.poll()) != null) {
+            pending.reply.completeExceptionally(cause);
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.log(Level.FINE, "Error closing redis connection", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            fail(new JedisConnectionException("Connection closed"));
+        }
+    }
+
+    private static class PendingCommand {
+        private final byte[] payload;
+        private final CompletableFuture<Object> reply = new CompletableFuture<>();
+        private volatile long sentNanos;
+
+        PendingCommand(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+}
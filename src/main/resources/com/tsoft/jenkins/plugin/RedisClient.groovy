@@ -5,6 +5,8 @@ import com.tsoft.jenkins.plugin.db.RedisDatabasePoolConfiguration
 import com.tsoft.jenkins.plugin.rejson.JReJSON
 import com.tsoft.jenkins.plugin.rejson.Path
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException
+import redis.clients.jedis.exceptions.JedisException
 
 import java.util.logging.Logger
 
@@ -12,14 +14,19 @@ class RedisClient implements Serializable {
 
     static final Logger log = Logger.getLogger(RedisClient.class.getName());
     private transient RedisDatabasePoolConfiguration config = RedisDatabasePoolConfiguration.get();
-    private static JReJSON client2;
 
     private org.jenkinsci.plugins.workflow.cps.CpsScript script;
 
     RedisClient(org.jenkinsci.plugins.workflow.cps.CpsScript script) {
         this.script = script
         config.load()
-        client2 = JRedisPool.getPool()
+    }
+
+    /**
+     * Cliente de la carpeta mas cercana con un servidor de redis configurado, o el cliente global
+     */
+    private JReJSON client() {
+        return JRedisPool.getPool(script.$build()?.rawBuild?.parent)
     }
 
     private <V> V node(Closure<V> body) {
@@ -47,12 +54,21 @@ class RedisClient implements Serializable {
      */
     private void redisSet(String key, Object val, Path path){
         try {
-            def client = JRedisPool.getPool()
-            client.set(key, val, path)
+            client().set(key, val, path)
         }
         catch(NullPointerException ne){
             script.error("[REDIS:ERROR] No existe una conexion activa hacia el servidor de redis.")
         }
+        catch(IllegalStateException ie){
+            script.error("[REDIS:ERROR] " + ie.message)
+        }
+        catch(JedisDataException de){
+            throw de
+        }
+        catch(JedisException je){
+            // pool agotado (vencio maxWaitMillis) o servidor caido
+            script.error("[REDIS:ERROR] No se pudo obtener una conexion con el servidor de redis: " + je.message)
+        }
     }
 
     // metodo set con un string path
@@ -78,11 +94,21 @@ class RedisClient implements Serializable {
      */
     private void redisDel(String key, Path path){
         try {
-            client2.del(key, path)
+            client().del(key, path)
         }
         catch(NullPointerException ne){
             script.echo("[REDIS:ERROR] No existe una conexion activa hacia el servidor de redis.")
         }
+        catch(IllegalStateException ie){
+            script.echo("[REDIS:ERROR] " + ie.message)
+        }
+        catch(JedisDataException de){
+            throw de
+        }
+        catch(JedisException je){
+            // pool agotado (vencio maxWaitMillis) o servidor caido
+            script.echo("[REDIS:ERROR] No se pudo obtener una conexion con el servidor de redis: " + je.message)
+        }
     }
 
     def del(String key, Object path){
@@ -103,11 +129,21 @@ class RedisClient implements Serializable {
     private Object redisGet(String key, Path path){
         def return_value = null
         try {
-            return_value = client2.get(key, path)
+            return_value = client().get(key, path)
         }
         catch(NullPointerException ne){
             script.echo("[REDIS:ERROR] No existe una conexion activa hacia el servidor de redis.")
         }
+        catch(IllegalStateException ie){
+            script.echo("[REDIS:ERROR] " + ie.message)
+        }
+        catch(JedisDataException de){
+            throw de
+        }
+        catch(JedisException je){
+            // pool agotado (vencio maxWaitMillis) o servidor caido
+            script.echo("[REDIS:ERROR] No se pudo obtener una conexion con el servidor de redis: " + je.message)
+        }
         return return_value
     }
 
@@ -129,11 +165,21 @@ class RedisClient implements Serializable {
      */
     private Class<?> redisType(String key, Path path){
         try {
-            client2.type(key, path)
+            client().type(key, path)
         }
         catch(NullPointerException ne){
             script.echo("[REDIS:ERROR] No existe una conexion activa hacia el servidor de redis.")
         }
+        catch(IllegalStateException ie){
+            script.echo("[REDIS:ERROR] " + ie.message)
+        }
+        catch(JedisDataException de){
+            throw de
+        }
+        catch(JedisException je){
+            // pool agotado (vencio maxWaitMillis) o servidor caido
+            script.echo("[REDIS:ERROR] No se pudo obtener una conexion con el servidor de redis: " + je.message)
+        }
     }
     // Usando solo la Key
     def type(String key){
@@ -148,6 +194,18 @@ class RedisClient implements Serializable {
      * get all keys
      */
     def keys(){
-        return client2.keys()
+        try {
+            return client().keys()
+        }
+        catch(IllegalStateException ie){
+            script.echo("[REDIS:ERROR] " + ie.message)
+        }
+        catch(JedisDataException de){
+            throw de
+        }
+        catch(JedisException je){
+            // pool agotado (vencio maxWaitMillis) o servidor caido
+            script.echo("[REDIS:ERROR] No se pudo obtener una conexion con el servidor de redis: " + je.message)
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.tsoft.jenkins.plugin.db;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.tsoft.jenkins.plugin.rejson.JReJSON;
+import hudson.model.FreeStyleProject;
+import hudson.model.listeners.ItemListener;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.*;
+
+// MockFolder is not an AbstractFolder and cannot hold folder properties, so these use cloudbees Folder
+public class RedisFolderPropertyTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    @After
+    public void tearDown() {
+        for (Folder folder : r.jenkins.getAllItems(Folder.class)) {
+            folder.getProperties().removeAll(RedisFolderProperty.class);
+        }
+        JRedisPool.evictFolderClients();
+    }
+
+    @Test
+    public void nearestConfiguredFolderWins() throws Exception {
+        Folder outer = r.jenkins.createProject(Folder.class, "outer");
+        Folder inner = outer.createProject(Folder.class, "inner");
+        FreeStyleProject job = inner.createProject(FreeStyleProject.class, "job");
+        FreeStyleProject top = r.createFreeStyleProject("top");
+
+        assertNull(RedisFolderProperty.nearest(job));
+        assertNull(RedisFolderProperty.nearest(top));
+
+        outer.addProperty(new RedisFolderProperty("localhost:6380"));
+        assertEquals("localhost:6380", RedisFolderProperty.nearest(job).getRedisServerUrl());
+        assertSame(outer, RedisFolderProperty.nearestFolder(job));
+
+        // an empty property is ignored
+        inner.addProperty(new RedisFolderProperty(""));
+        assertSame(outer, RedisFolderProperty.nearestFolder(job));
+
+        // limits alone give the folder its own pool on the global server
+        RedisFolderProperty limits = new RedisFolderProperty("");
+        limits.setMaxTotal(4);
+        inner.getProperties().replace(limits);
+        assertSame(inner, RedisFolderProperty.nearestFolder(job));
+        assertEquals(RedisDatabasePoolConfiguration.get().getRedisServerUrl(), limits.getEffectiveServerUrl());
+    }
+
+    @Test
+    public void jobsOutsideConfiguredFoldersUseTheGlobalClient() throws Exception {
+        FreeStyleProject top = r.createFreeStyleProject("top");
+        assertSame(JRedisPool.getPool(), JRedisPool.getPool(top));
+    }
+
+    @Test
+    public void poolIsCachedPerFolder() throws Exception {
+        Folder a = r.jenkins.createProject(Folder.class, "a");
+        Folder b = r.jenkins.createProject(Folder.class, "b");
+        a.addProperty(new RedisFolderProperty("localhost:6380"));
+        b.addProperty(new RedisFolderProperty("localhost:6380"));
+        FreeStyleProject a1 = a.createProject(FreeStyleProject.class, "a1");
+        FreeStyleProject a2 = a.createProject(FreeStyleProject.class, "a2");
+        FreeStyleProject b1 = b.createProject(FreeStyleProject.class, "b1");
+
+        JReJSON pool = JRedisPool.getPool(a1);
+        assertNotNull(pool);
+        assertSame(pool, JRedisPool.getPool(a1));
+        assertSame(pool, JRedisPool.getPool(a2));
+        assertNotSame(pool, JRedisPool.getPool(b1));
+        assertNotSame(JRedisPool.getPool(), pool);
+    }
+
+    @Test
+    public void updatedFolderEvictsItsPool() throws Exception {
+        Folder a = r.jenkins.createProject(Folder.class, "a");
+        a.addProperty(new RedisFolderProperty("localhost:6380"));
+        FreeStyleProject job = a.createProject(FreeStyleProject.class, "job");
+        JReJSON old = JRedisPool.getPool(job);
+        assertTrue(JRedisPool.getEndpoints().containsValue(old));
+
+        a.getProperties().replace(new RedisFolderProperty("localhost:6381"));
+        ItemListener.fireOnUpdated(a);
+
+        assertFalse(JRedisPool.getEndpoints().containsValue(old));
+        assertNotSame(old, JRedisPool.getPool(job));
+    }
+
+    @Test
+    public void deletedFolderEvictsItsPool() throws Exception {
+        Folder a = r.jenkins.createProject(Folder.class, "a");
+        Folder inner = a.createProject(Folder.class, "inner");
+        inner.addProperty(new RedisFolderProperty("localhost:6380"));
+        FreeStyleProject job = inner.createProject(FreeStyleProject.class, "job");
+        JReJSON old = JRedisPool.getPool(job);
+
+        // deleting the parent also drops the pools of the folders inside it
+        a.delete();
+
+        assertFalse(JRedisPool.getEndpoints().containsValue(old));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidUrlIsRejected() {
+        new RedisFolderProperty("not a url");
+    }
+}
@@ -0,0 +1,107 @@
+package com.tsoft.jenkins.plugin.db;
+
+import com.tsoft.jenkins.plugin.rejson.JReJSON;
+import com.tsoft.jenkins.plugin.rejson.MultiplexedClient;
+import com.tsoft.jenkins.plugin.rejson.StubServer;
+import hudson.ExtensionList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RedisHealthMonitorTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    private StubServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void healthyEndpointRecordsTheRoundTrip() {
+        RedisHealthMonitor.Endpoint endpoint = new RedisHealthMonitor.Endpoint("stub");
+        assertEquals("Not checked yet", endpoint.getStatus());
+        JReJSON client = client(server.getPort());
+        try {
+            assertTrue(endpoint.check(client));
+        } finally {
+            client.close();
+        }
+        assertTrue(endpoint.isHealthy());
+        assertTrue(endpoint.getLastRttMillis() >= 0);
+        assertNull(endpoint.getLastError());
+        assertTrue(endpoint.getStatus().startsWith("Healthy, PING "));
+    }
+
+    @Test
+    public void unexpectedReplyIsUnhealthy() {
+        server.setPingReply("+NOPE\r\n");
+        RedisHealthMonitor.Endpoint endpoint = new RedisHealthMonitor.Endpoint("stub");
+        JReJSON client = client(server.getPort());
+        try {
+            assertFalse(endpoint.check(client));
+        } finally {
+            client.close();
+        }
+        assertFalse(endpoint.isHealthy());
+        assertTrue(endpoint.getLastRttMillis() >= 0);
+        assertEquals("Unexpected reply: NOPE", endpoint.getLastError());
+    }
+
+    @Test
+    public void refusedConnectionIsUnhealthy() {
+        RedisHealthMonitor.Endpoint endpoint = new RedisHealthMonitor.Endpoint("stub");
+        // nothing listens on tcpmux, so the connect is refused
+        JReJSON client = client(1);
+        try {
+            assertFalse(endpoint.check(client));
+        } finally {
+            client.close();
+        }
+        assertFalse(endpoint.isHealthy());
+        assertEquals(-1, endpoint.getLastRttMillis(), 0);
+        assertNotNull(endpoint.getLastError());
+        assertTrue(endpoint.getStatus().startsWith("Unhealthy: "));
+    }
+
+    @Test
+    public void monitorChecksTheGlobalPool() {
+        RedisDatabasePoolConfiguration.get().setRedisServerUrl("localhost:" + server.getPort());
+        JRedisPool.reload();
+        RedisHealthMonitor monitor = RedisHealthMonitor.get();
+        RedisHealthAdministrativeMonitor admin = ExtensionList.lookupSingleton(RedisHealthAdministrativeMonitor.class);
+
+        monitor.check();
+        List<RedisHealthMonitor.Endpoint> endpoints = monitor.getEndpoints();
+        assertEquals(1, endpoints.size());
+        assertEquals("Global (localhost:" + server.getPort() + ")", endpoints.get(0).getName());
+        assertTrue(endpoints.get(0).isHealthy());
+        assertTrue(endpoints.get(0).getLastRttMillis() >= 0);
+        assertNull(monitor.getStatus());
+        assertFalse(admin.isActivated());
+
+        server.setPingReply("-ERR down\r\n");
+        monitor.check();
+        assertFalse(monitor.getEndpoints().get(0).isHealthy());
+        assertTrue(admin.isActivated());
+        assertEquals(1, admin.getUnhealthyEndpoints().size());
+    }
+
+    private static JReJSON client(int port) {
+        return new JReJSON(new MultiplexedClient("localhost", port, 1, 2000, 10000));
+    }
+}
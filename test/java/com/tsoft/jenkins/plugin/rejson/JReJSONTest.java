@@ -0,0 +1,60 @@
+package com.tsoft.jenkins.plugin.rejson;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import static org.junit.Assert.*;
+
+public class JReJSONTest {
+
+    private StubServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void warmUpDoesNotGrowPastTheRequestedIdleCount() {
+        JedisPool pool = new JedisPool(new GenericObjectPoolConfig<Jedis>(), "localhost", server.getPort());
+        JReJSON client = new JReJSON(pool);
+        try {
+            client.warmUp(3);
+            client.warmUp(3);
+            assertEquals(3, pool.getNumIdle());
+
+            // a lower count leaves the open connections alone
+            client.warmUp(1);
+            assertEquals(3, pool.getNumIdle());
+
+            // the PING reuses the last idle connection, so every connect was already accepted
+            assertEquals("PONG", client.ping());
+            assertEquals(3, server.getConnections());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void multiplexedWarmUpOpensEachConnectionOnce() {
+        JReJSON client = new JReJSON(new MultiplexedClient("localhost", server.getPort(), 2, 2000, 10000));
+        try {
+            client.warmUp(5);
+            client.warmUp(5);
+            assertEquals("PONG", client.ping());
+            assertEquals("PONG", client.ping());
+            assertEquals(2, server.getConnections());
+        } finally {
+            client.close();
+        }
+    }
+}
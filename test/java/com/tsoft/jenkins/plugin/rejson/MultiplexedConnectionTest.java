@@ -0,0 +1,190 @@
+package com.tsoft.jenkins.plugin.rejson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MultiplexedConnectionTest {
+
+    private static final ProtocolCommand REPLY = () -> SafeEncoder.encode("REPLY");
+    private static final int TIMEOUT = 2000;
+    private static final int SILENCE_TIMEOUT = 10000;
+
+    private StubServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void repliesAreDecoded() {
+        try (MultiplexedConnection conn = new MultiplexedConnection("localhost", server.getPort(), TIMEOUT, SILENCE_TIMEOUT)) {
+            assertEquals("hello", SafeEncoder.encode((byte[]) conn.execute(REPLY, arg("bulk"))));
+            assertNull(conn.execute(REPLY, arg("nullbulk")));
+            assertEquals(42L, conn.execute(REPLY, arg("integer")));
+            assertEquals("OK", SafeEncoder.encode((byte[]) conn.execute(REPLY, arg("status"))));
+
+            List<?> nested = (List<?>) conn.execute(REPLY, arg("nested"));
+            assertEquals(2, nested.size());
+            List<?> inner = (List<?>) nested.get(0);
+            assertEquals(1L, inner.get(0));
+            assertEquals("a", SafeEncoder.encode((byte[]) inner.get(1)));
+            assertNull(nested.get(1));
+
+            try {
+                conn.execute(REPLY, arg("error"));
+                fail("expected an error reply");
+            } catch (JedisDataException e) {
+                assertEquals("ERR a\u00f1o inv\u00e1lido", e.getMessage());
+            }
+            // an error reply does not break the connection
+            assertTrue(conn.isOpen());
+            assertEquals(42L, conn.execute(REPLY, arg("integer")));
+        }
+    }
+
+    @Test
+    public void bulkReplyLargerThanReadBuffer() {
+        try (MultiplexedConnection conn = new MultiplexedConnection("localhost", server.getPort(), TIMEOUT, SILENCE_TIMEOUT)) {
+            byte[] reply = (byte[]) conn.execute(REPLY, arg("large"));
+            assertArrayEquals(StubServer.LARGE, reply);
+            assertEquals(42L, conn.execute(REPLY, arg("integer")));
+        }
+    }
+
+    @Test
+    public void concurrentCallersGetTheirOwnReplies() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try (MultiplexedConnection conn = new MultiplexedConnection("localhost", server.getPort(), TIMEOUT, SILENCE_TIMEOUT)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                final int thread = t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String value = thread + ":" + i;
+                        assertEquals(value, SafeEncoder.encode((byte[]) conn.execute(REPLY, arg("echo"), arg(value))));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void pendingCommandsFailOnEof() {
+        try (MultiplexedConnection conn = new MultiplexedConnection("localhost", server.getPort(), TIMEOUT, SILENCE_TIMEOUT)) {
+            long start = System.currentTimeMillis();
+            try {
+                conn.execute(REPLY, arg("close"));
+                fail("expected the connection to fail");
+            } catch (JedisConnectionException e) {
+                assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+            }
+            assertFalse(conn.isOpen());
+            try {
+                conn.execute(REPLY, arg("integer"));
+                fail("expected a closed connection");
+            } catch (JedisConnectionException e) {
+                assertEquals("Connection is closed", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void slowReplyOnlyFailsItsCaller() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (MultiplexedConnection conn = new MultiplexedConnection("localhost", server.getPort(), 400, SILENCE_TIMEOUT)) {
+            // the stub answers "slow" after 600 ms
+            Future<?> slow = pool.submit(() -> conn.execute(REPLY, arg("slow")));
+            Thread.sleep(300);
+            // queued behind the slow command, answered once it completes
+            assertEquals(42L, conn.execute(REPLY, arg("integer")));
+            try {
+                slow.get(5, TimeUnit.SECONDS);
+                fail("expected a timeout");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertEquals("Timed out waiting for a reply", e.getCause().getMessage());
+            }
+            // the late reply was dropped and replies stay matched to their callers
+            assertTrue(conn.isOpen());
+            assertEquals("hello", SafeEncoder.encode((byte[]) conn.execute(REPLY, arg("bulk"))));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void silentServerDropsTheConnection() {
+        try (MultiplexedConnection conn = new MultiplexedConnection("localhost", server.getPort(), 200, 200)) {
+            try {
+                conn.execute(REPLY, arg("silent"));
+                fail("expected a timeout");
+            } catch (JedisConnectionException e) {
+                assertEquals("Timed out waiting for a reply", e.getMessage());
+            }
+            assertFalse(conn.isOpen());
+        }
+    }
+
+    @Test
+    public void clientReopensBrokenSlot() {
+        try (MultiplexedClient client = new MultiplexedClient("localhost", server.getPort(), 1, TIMEOUT, SILENCE_TIMEOUT)) {
+            assertEquals(42L, client.execute(REPLY, arg("integer")));
+            try {
+                client.execute(REPLY, arg("close"));
+                fail("expected the connection to fail");
+            } catch (JedisConnectionException e) {
+                // expected
+            }
+            assertEquals(42L, client.execute(REPLY, arg("integer")));
+            assertEquals(2, server.getConnections());
+        }
+    }
+
+    @Test
+    public void clientFailsFastAfterFailedConnect() {
+        // nothing listens on tcpmux, so the connect is refused
+        try (MultiplexedClient client = new MultiplexedClient("localhost", 1, 1, TIMEOUT, SILENCE_TIMEOUT)) {
+            try {
+                client.execute(REPLY, arg("integer"));
+                fail("expected connection refused");
+            } catch (JedisConnectionException e) {
+                assertTrue(e.getMessage().startsWith("Failed connecting"));
+            }
+            try {
+                client.execute(REPLY, arg("integer"));
+                fail("expected to fail fast");
+            } catch (JedisConnectionException e) {
+                assertTrue(e.getMessage().endsWith("failed recently, retrying later"));
+            }
+        }
+    }
+
+    private static byte[] arg(String value) {
+        return SafeEncoder.encode(value);
+    }
+}
@@ -0,0 +1,168 @@
+package com.tsoft.jenkins.plugin.rejson;
+
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor de prueba que responde segun el primer argumento de cada comando
+ */
+public class StubServer implements AutoCloseable {
+
+    public static final byte[] LARGE = new byte[100 * 1024];
+
+    static {
+        for (int i = 0; i < LARGE.length; i++) {
+            LARGE[i] = (byte) ('a' + i % 26);
+        }
+    }
+
+    private final ServerSocket socket = new ServerSocket(0);
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile String pingReply = "+PONG\r\n";
+
+    public StubServer() throws IOException {
+        Thread acceptor = new Thread(() -> {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    connections.incrementAndGet();
+                    Thread handler = new Thread(() -> handle(client));
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @param pingReply the raw RESP reply sent to PING
+     */
+    public void setPingReply(String pingReply) {
+        this.pingReply = pingReply;
+    }
+
+    private void handle(Socket client) {
+        try (Socket s = client) {
+            InputStream in = new BufferedInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                byte[] reply = reply(command);
+                if (reply == null) {
+                    if (command.size() > 1 && "close".equals(command.get(1))) {
+                        return;
+                    }
+                    continue;
+                }
+                out.write(reply);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private byte[] reply(List<String> command) throws IOException {
+        if ("PING".equals(command.get(0))) {
+            return SafeEncoder.encode(pingReply);
+        }
+        switch (command.get(1)) {
+            case "bulk":
+                return SafeEncoder.encode("$5\r\nhello\r\n");
+            case "nullbulk":
+                return SafeEncoder.encode("$-1\r\n");
+            case "integer":
+                return SafeEncoder.encode(":42\r\n");
+            case "status":
+                return SafeEncoder.encode("+OK\r\n");
+            case "error":
+                return SafeEncoder.encode("-ERR a\u00f1o inv\u00e1lido\r\n");
+            case "nested":
+                return SafeEncoder.encode("*2\r\n*2\r\n:1\r\n$1\r\na\r\n$-1\r\n");
+            case "echo":
+                byte[] value = SafeEncoder.encode(command.get(2));
+                return SafeEncoder.encode("$" + value.length + "\r\n" + command.get(2) + "\r\n");
+            case "slow":
+                try {
+                    Thread.sleep(600);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return SafeEncoder.encode("$4\r\nslow\r\n");
+            case "large":
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                out.write(SafeEncoder.encode("$" + LARGE.length + "\r\n"));
+                out.write(LARGE);
+                out.write(SafeEncoder.encode("\r\n"));
+                return out.toByteArray();
+            default:
+                return null;
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        int count = Integer.parseInt(header.substring(1));
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            int len = Integer.parseInt(readLine(in).substring(1));
+            byte[] data = new byte[len + 2];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+            args[i] = SafeEncoder.encode(Arrays.copyOf(data, len));
+        }
+        return Arrays.asList(args);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                return null;
+            }
+            line.write(b);
+        }
+        in.read();
+        return SafeEncoder.encode(line.toByteArray());
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}